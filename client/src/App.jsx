@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import axios from 'axios';
 import { RefreshCcw, Wallet, TrendingUp, XCircle, Search, X } from 'lucide-react';
 
@@ -6,6 +6,15 @@ const api = axios.create({
     baseURL: 'http://localhost:8080/api/dhan'
 });
 
+// Client order ID sent as Dhan's correlationId so the backend can dedupe retries
+const newCorrelationId = () => crypto.randomUUID().replace(/-/g, '').slice(0, 20);
+
+// Only a 4xx proves the order was not placed; no response, 503 or 504 means Dhan may hold it
+const orderDefinitelyFailed = (err) => {
+    const status = err.response?.status;
+    return status >= 400 && status < 500;
+};
+
 function App() {
     const [activeTab, setActiveTab] = useState('dashboard');
     const [account, setAccount] = useState(null);
@@ -31,6 +40,16 @@ function App() {
     const [showSearchResults, setShowSearchResults] = useState(false);
     const [searchLoading, setSearchLoading] = useState(false);
 
+    // Kept until the backend answers, so a resubmit after a timeout reuses the same ID
+    const pendingOrderId = useRef(null);
+    // Exit orders awaiting an answer, keyed by position, so a retry reuses the same ID
+    const pendingCloseIds = useRef({});
+
+    // Editing the ticket makes it a different order, so it needs a fresh ID
+    useEffect(() => {
+        pendingOrderId.current = null;
+    }, [order]);
+
     useEffect(() => {
         fetchAccount();
     }, []);
@@ -94,10 +113,12 @@ function App() {
     const searchSymbols = async (query) => {
         setSearchLoading(true);
         try {
-            const res = await api.post('/symbols/search', {
-                query: query,
-                exchange: order.exchange.split('_')[0],
-                limit: 10
+            const res = await api.get('/symbols/search', {
+                params: {
+                    query: query,
+                    exchange: order.exchange.split('_')[0],
+                    limit: 10
+                }
             });
             if (res.data.success) {
                 console.log('Search results:', res.data.data);
@@ -133,15 +154,19 @@ function App() {
             return;
         }
 
+        if (loading) return;
         setLoading(true);
+        if (!pendingOrderId.current) pendingOrderId.current = newCorrelationId();
         try {
             const orderPayload = {
                 ...order,
-                symbol: order.securityId
+                symbol: order.securityId,
+                correlationId: pendingOrderId.current
             };
 
             console.log('Placing order:', orderPayload);
             const res = await api.post('/orders', orderPayload);
+            pendingOrderId.current = null;
             if (res.data.success) {
                 alert(`Order ${res.data.data.status}`);
                 fetchPositions();
@@ -155,6 +180,7 @@ function App() {
                 });
             }
         } catch (err) {
+            if (orderDefinitelyFailed(err)) pendingOrderId.current = null;
             alert('Order Failed: ' + (err.response?.data?.message || err.message));
         } finally {
             setLoading(false);
@@ -173,6 +199,10 @@ function App() {
             return;
         }
 
+        const positionKey = [position.securityId, position.exchange, position.productType,
+            position.positionType, position.quantity].join('|');
+        if (!pendingCloseIds.current[positionKey]) pendingCloseIds.current[positionKey] = newCorrelationId();
+
         setLoading(true);
         try {
             const closeRequest = {
@@ -181,17 +211,20 @@ function App() {
                 exchange: position.exchange,
                 quantity: position.quantity,
                 productType: position.productType,
-                positionType: position.positionType
+                positionType: position.positionType,
+                correlationId: pendingCloseIds.current[positionKey]
             };
 
             console.log('Close request:', closeRequest);
             const res = await api.post('/positions/close', closeRequest);
+            delete pendingCloseIds.current[positionKey];
 
             if (res.data.success) {
                 alert("Position closed successfully");
                 fetchPositions();
             }
         } catch (err) {
+            if (orderDefinitelyFailed(err)) delete pendingCloseIds.current[positionKey];
             const errorMsg = err.response?.data?.message || err.message;
             alert("Failed to close position: " + errorMsg);
             console.error('Close position error:', err.response?.data);
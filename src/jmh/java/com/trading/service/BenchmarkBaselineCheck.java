@@ -0,0 +1,98 @@
+package com.trading.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result against the checked-in baseline and exits non-zero
+ * when any benchmark got slower than the baseline by more than the tolerance.
+ * Benchmarks missing from either side are reported but do not fail the run.
+ *
+ * <p>Usage: {@code BenchmarkBaselineCheck <result.json> <baseline.json> <tolerance>},
+ * where a tolerance of 0.5 allows scores up to 1.5x the baseline.
+ */
+public final class BenchmarkBaselineCheck {
+
+    private BenchmarkBaselineCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: BenchmarkBaselineCheck <result.json> <baseline.json> <tolerance>");
+            System.exit(2);
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, JsonNode> results = index(mapper.readTree(new File(args[0])));
+        Map<String, JsonNode> baseline = index(mapper.readTree(new File(args[1])));
+        double tolerance = Double.parseDouble(args[2]);
+
+        List<String> regressions = compare(results, baseline, tolerance);
+        if (!regressions.isEmpty()) {
+            System.err.printf("%d benchmark(s) regressed beyond %.0f%% of %s:%n",
+                    regressions.size(), tolerance * 100, args[1]);
+            regressions.forEach(line -> System.err.println("  " + line));
+            System.exit(1);
+        }
+        System.out.printf("All benchmarks within %.0f%% of baseline%n", tolerance * 100);
+    }
+
+    static List<String> compare(Map<String, JsonNode> results, Map<String, JsonNode> baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        results.forEach((key, result) -> {
+            JsonNode base = baseline.get(key);
+            if (base == null) {
+                System.out.println("NEW       " + key + " (no baseline)");
+                return;
+            }
+            String unit = result.path("primaryMetric").path("scoreUnit").asText();
+            String baseUnit = base.path("primaryMetric").path("scoreUnit").asText();
+            if (!unit.equals(baseUnit)) {
+                regressions.add(key + ": unit " + unit + " does not match baseline unit " + baseUnit);
+                return;
+            }
+
+            double score = result.path("primaryMetric").path("score").asDouble();
+            double baseScore = base.path("primaryMetric").path("score").asDouble();
+            // Throughput modes improve upwards; every time-based mode improves downwards
+            boolean higherIsBetter = "thrpt".equals(result.path("mode").asText());
+            boolean regressed = higherIsBetter
+                    ? score < baseScore * (1 - tolerance)
+                    : score > baseScore * (1 + tolerance);
+
+            String line = String.format("%s: %.3f %s (baseline %.3f, %+.0f%%)",
+                    key, score, unit, baseScore, (score / baseScore - 1) * 100);
+            System.out.println((regressed ? "REGRESSED " : "ok        ") + line);
+            if (regressed) regressions.add(line);
+        });
+        baseline.keySet().stream()
+                .filter(key -> !results.containsKey(key))
+                .forEach(key -> System.out.println("SKIPPED   " + key + " (not in this run)"));
+        return regressions;
+    }
+
+    // One entry per benchmark and parameter combination, e.g. "...searchSymbolsCold:avgt{value=NIFTY}"
+    static Map<String, JsonNode> index(JsonNode runs) {
+        Map<String, JsonNode> indexed = new LinkedHashMap<>();
+        for (JsonNode run : runs) {
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = run.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                params.put(field.getKey(), field.getValue().asText());
+            }
+            String key = run.path("benchmark").asText() + ":" + run.path("mode").asText()
+                    + (params.isEmpty() ? "" : params.toString());
+            indexed.put(key, run);
+        }
+        return indexed;
+    }
+}
@@ -0,0 +1,58 @@
+package com.trading.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading.dto.CreateOrderRequest;
+import com.trading.model.DhanAccount;
+import com.trading.model.Position;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+@State(Scope.Benchmark)
+public class DhanServiceBenchmark {
+
+    private DhanService service;
+    private List<Map<String, Object>> positionsResponse;
+    private DhanAccount account;
+    private CreateOrderRequest orderRequest;
+
+    @Setup
+    public void setUp() throws Exception {
+        service = new DhanService(new RestTemplateBuilder(), 2000, 5000);
+        positionsResponse = new ObjectMapper().readValue(
+                BenchmarkFixtures.read("positions.json"),
+                new TypeReference<List<Map<String, Object>>>() {}
+        );
+
+        account = new DhanAccount();
+        account.setClientId("1000000001");
+
+        orderRequest = new CreateOrderRequest();
+        orderRequest.setSymbol("1001");
+        orderRequest.setExchange("NSE_EQ");
+        orderRequest.setTransactionType("BUY");
+        orderRequest.setQuantity(10);
+        orderRequest.setPrice(2450.5);
+        orderRequest.setOrderType("LIMIT");
+        orderRequest.setProductType("INTRADAY");
+    }
+
+    @Benchmark
+    public List<Position> parsePositions() {
+        return service.parsePositions(positionsResponse);
+    }
+
+    @Benchmark
+    public Map<String, Object> buildOrderPayload() {
+        return service.buildOrderPayload(account, orderRequest, "bench0000000000000001");
+    }
+}
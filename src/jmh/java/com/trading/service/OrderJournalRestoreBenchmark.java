@@ -0,0 +1,96 @@
+package com.trading.service;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup restore of the order journal from a file-backed H2 database migrated
+ * with the application's own Flyway scripts. "Cold" opens the database file on
+ * every call, as after a crash; "warm" reuses an open connection, as the pool does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+@State(Scope.Benchmark)
+public class OrderJournalRestoreBenchmark {
+
+    // Orders journaled within the dedupe window; a busy session places a few hundred
+    @Param({"0", "1000"})
+    public int journaledOrders;
+
+    private Path dir;
+    private String url;
+
+    @Setup
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("journal-bench");
+        url = "jdbc:h2:file:" + dir.resolve("tradingdb");
+        Flyway.configure().dataSource(url, "sa", "").load().migrate();
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (int i = 0; i < journaledOrders; i++) {
+                jdbc.update("INSERT INTO order_journal (correlation_id, order_id, status, symbol, exchange,"
+                                + " transaction_type, quantity, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                        String.format("bench%015d", i), String.valueOf(5000000 + i), "TRADED",
+                        "1001", "NSE_EQ", i % 2 == 0 ? "BUY" : "SELL", 10, now);
+            }
+        }
+        // Closing the last connection closes the database, so each cold call reopens the file
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        try (var files = Files.walk(dir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    /** Holds the database open between calls; only restoreWarm uses it. */
+    @State(Scope.Benchmark)
+    public static class WarmConnection {
+        Connection connection;
+
+        @Setup
+        public void open(OrderJournalRestoreBenchmark bench) throws Exception {
+            connection = DriverManager.getConnection(bench.url, "sa", "");
+        }
+
+        @TearDown
+        public void close() throws Exception {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public int restoreCold() throws Exception {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            return restore(connection);
+        }
+    }
+
+    @Benchmark
+    public int restoreWarm(WarmConnection warm) {
+        return restore(warm.connection);
+    }
+
+    private int restore(Connection connection) {
+        // TTL long enough that the seeded rows stay inside the window for the whole run
+        OrderDedupeCache cache = new OrderDedupeCache(86_400, 100_000);
+        return OrderJournalService.restoreRecentOrders(
+                new JdbcTemplate(new SingleConnectionDataSource(connection, true)), cache);
+    }
+}
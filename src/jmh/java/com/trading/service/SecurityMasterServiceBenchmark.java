@@ -0,0 +1,66 @@
+package com.trading.service;
+
+import com.trading.model.SecurityMaster;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+@State(Scope.Benchmark)
+public class SecurityMasterServiceBenchmark {
+
+    private String csv;
+    private List<SecurityMaster> securities;
+    private SecurityMasterService service;
+    private String lastSecurityId;
+
+    @Setup
+    public void setUp() throws Exception {
+        csv = BenchmarkFixtures.read("security-master.csv");
+        service = new SecurityMasterService(1000, 256, 5000);
+        securities = service.parseSecurityMaster(new StringReader(csv));
+        service.loadSecurities(securities);
+        lastSecurityId = securities.get(securities.size() - 1).getSecurityId();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Query {
+        @Param({"NIFTY", "BANKNIFTY", "RELIANCE"})
+        public String value;
+    }
+
+    /** Fresh search cache before every call, so each search scans the master. */
+    @State(Scope.Thread)
+    public static class ColdCache {
+        @Setup(Level.Invocation)
+        public void reset(SecurityMasterServiceBenchmark bench) {
+            bench.service.loadSecurities(bench.securities);
+        }
+    }
+
+    @Benchmark
+    public List<SecurityMaster> parseSecurityMaster() throws Exception {
+        return service.parseSecurityMaster(new StringReader(csv));
+    }
+
+    @Benchmark
+    public List<SecurityMaster> searchSymbolsCold(Query query, ColdCache cold) {
+        return service.searchSymbols(query.value, "NSE", 10);
+    }
+
+    @Benchmark
+    public List<SecurityMaster> searchSymbolsCached(Query query) {
+        return service.searchSymbols(query.value, "NSE", 10);
+    }
+
+    @Benchmark
+    public SecurityMaster getBySecurityIdWorstCase() {
+        return service.getBySecurityId(lastSecurityId);
+    }
+}
@@ -1,18 +1,27 @@
 package com.trading.controller;
 
 import com.trading.dto.*;
+import com.trading.exception.GatewayUnavailableException;
+import com.trading.exception.OrderOutcomeUnknownException;
+import com.trading.exception.TradingHaltedException;
+import com.trading.exception.UpstreamFailureException;
 import com.trading.model.DhanAccount;
 import com.trading.model.Order;
 import com.trading.model.Position;
 import com.trading.model.SecurityMaster;
+import com.trading.service.DhanGatewayGuard;
 import com.trading.service.DhanService;
 import com.trading.service.SecurityMasterService;
+import com.trading.service.TradingStateService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/dhan")
@@ -25,6 +34,12 @@ public class DhanController {
     @Autowired
     private SecurityMasterService securityMasterService;
 
+    @Autowired
+    private DhanGatewayGuard gatewayGuard;
+
+    @Autowired
+    private TradingStateService tradingStateService;
+
     @PostMapping("/link-account")
     public ResponseEntity<ApiResponse<DhanAccount>> linkAccount(
             @RequestBody LinkAccountRequest request) {
@@ -51,6 +66,15 @@ public class DhanController {
             return ResponseEntity.ok(
                     ApiResponse.success("Positions fetched successfully", positions)
             );
+        } catch (GatewayUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(
+                    ApiResponse.error(e.getMessage())
+            );
+        } catch (UpstreamFailureException e) {
+            log.warn("Dhan upstream failure: {}", e.getMessage());
+            return ResponseEntity.status(e.getStatus()).body(
+                    ApiResponse.error(e.getMessage())
+            );
         } catch (Exception e) {
             log.error("Error fetching positions: {}", e.getMessage());
             return ResponseEntity.badRequest().body(
@@ -67,6 +91,16 @@ public class DhanController {
             return ResponseEntity.ok(
                     ApiResponse.success("Order created successfully", order)
             );
+        } catch (OrderOutcomeUnknownException e) {
+            log.warn("Order outcome unknown: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(
+                    ApiResponse.error(e.getMessage())
+            );
+        } catch (GatewayUnavailableException | TradingHaltedException e) {
+            log.warn("Order rejected without calling Dhan: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(
+                    ApiResponse.error(e.getMessage())
+            );
         } catch (Exception e) {
             log.error("Error creating order: {}", e.getMessage());
             return ResponseEntity.badRequest().body(
@@ -83,6 +117,15 @@ public class DhanController {
             return ResponseEntity.ok(
                     ApiResponse.success("Order closed successfully", order)
             );
+        } catch (GatewayUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(
+                    ApiResponse.error(e.getMessage())
+            );
+        } catch (UpstreamFailureException e) {
+            log.warn("Dhan upstream failure: {}", e.getMessage());
+            return ResponseEntity.status(e.getStatus()).body(
+                    ApiResponse.error(e.getMessage())
+            );
         } catch (Exception e) {
             log.error("Error closing order: {}", e.getMessage());
             return ResponseEntity.badRequest().body(
@@ -105,18 +148,18 @@ public class DhanController {
             );
         }
     }
-    @PostMapping("/symbols/search")
+
+    // Cacheable form of the symbol search; the security master only changes once a day
+    @GetMapping("/symbols/search")
     public ResponseEntity<ApiResponse<List<SecurityMaster>>> searchSymbols(
-            @RequestBody SymbolSearchRequest request) {
+            @RequestParam String query,
+            @RequestParam(required = false) String exchange,
+            @RequestParam(defaultValue = "10") int limit) {
         try {
-            List<SecurityMaster> results = securityMasterService.searchSymbols(
-                    request.getQuery(),
-                    request.getExchange(),
-                    request.getLimit()
-            );
-            return ResponseEntity.ok(
-                    ApiResponse.success("Symbols found", results)
-            );
+            List<SecurityMaster> results = securityMasterService.searchSymbols(query, exchange, limit);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES))
+                    .body(ApiResponse.success("Symbols found", results));
         } catch (Exception e) {
             log.error("Error searching symbols: {}", e.getMessage());
             return ResponseEntity.badRequest().body(
@@ -125,6 +168,16 @@ public class DhanController {
         }
     }
 
+    @PostMapping("/symbols/search")
+    public ResponseEntity<ApiResponse<List<SecurityMaster>>> searchSymbolsPost(
+            @RequestBody SymbolSearchRequest request) {
+        return searchSymbols(
+                request.getQuery(),
+                request.getExchange(),
+                request.getLimit() == null ? 10 : request.getLimit()
+        );
+    }
+
     @PostMapping("/positions/close")
     public ResponseEntity<ApiResponse<Order>> closePosition(
             @RequestBody ClosePositionRequest request) {
@@ -133,6 +186,15 @@ public class DhanController {
             return ResponseEntity.ok(
                     ApiResponse.success("Position closed successfully", order)
             );
+        } catch (OrderOutcomeUnknownException e) {
+            log.warn("Close position outcome unknown: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(
+                    ApiResponse.error(e.getMessage())
+            );
+        } catch (GatewayUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(
+                    ApiResponse.error(e.getMessage())
+            );
         } catch (Exception e) {
             log.error("Error closing position: {}", e.getMessage());
             return ResponseEntity.badRequest().body(
@@ -140,4 +202,36 @@ public class DhanController {
             );
         }
     }
+
+    @GetMapping("/gateway")
+    public ResponseEntity<ApiResponse<GatewayStatus>> getGatewayStatus() {
+        return ResponseEntity.ok(
+                ApiResponse.success("Gateway status", gatewayStatus())
+        );
+    }
+
+    @PostMapping("/gateway/kill-switch")
+    public ResponseEntity<ApiResponse<GatewayStatus>> setKillSwitch(
+            @RequestBody KillSwitchRequest request) {
+        if (request.getEngaged() == null) {
+            return ResponseEntity.badRequest().body(
+                    ApiResponse.error("Field 'engaged' is required")
+            );
+        }
+        try {
+            tradingStateService.setTradingHalted(request.getEngaged());
+        } catch (Exception e) {
+            log.error("Failed to persist kill-switch: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    ApiResponse.error("Kill-switch applied but not saved; it will not survive a restart")
+            );
+        }
+        return ResponseEntity.ok(
+                ApiResponse.success(request.getEngaged() ? "Trading halted" : "Trading resumed", gatewayStatus())
+        );
+    }
+
+    private GatewayStatus gatewayStatus() {
+        return new GatewayStatus(gatewayGuard.isTradingHalted(), gatewayGuard.getCircuitStates());
+    }
 }
\ No newline at end of file
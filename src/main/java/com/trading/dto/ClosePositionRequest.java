@@ -10,4 +10,5 @@ public class ClosePositionRequest {
     private int quantity;
     private String productType;
     private String positionType; // LONG or SHORT
+    private String correlationId; // Client order ID, used to dedupe retries
 }
\ No newline at end of file
@@ -11,4 +11,5 @@ public class CreateOrderRequest {
     private Double price; // Optional for MARKET orders
     private String orderType; // MARKET/LIMIT
     private String productType; // INTRADAY/DELIVERY
+    private String correlationId; // Client order ID, used to dedupe retries
 }
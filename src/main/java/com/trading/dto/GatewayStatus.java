@@ -0,0 +1,13 @@
+package com.trading.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class GatewayStatus {
+    private boolean tradingHalted;
+    private Map<String, String> circuits; // endpoint -> CLOSED/HALF_OPEN/OPEN
+}
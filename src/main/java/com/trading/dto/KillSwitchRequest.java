@@ -0,0 +1,9 @@
+package com.trading.dto;
+
+import lombok.Data;
+
+@Data
+public class KillSwitchRequest {
+    // Boxed so a body without "engaged" is rejected rather than read as false
+    private Boolean engaged;
+}
@@ -0,0 +1,10 @@
+package com.trading.exception;
+
+/**
+ * Thrown without calling Dhan when the circuit for an endpoint is open.
+ */
+public class GatewayUnavailableException extends RuntimeException {
+    public GatewayUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.trading.exception;
+
+/**
+ * Thrown when an order may or may not have reached Dhan and a lookup by
+ * correlationId could not settle it. Clients should retry with the same id.
+ */
+public class OrderOutcomeUnknownException extends RuntimeException {
+    public OrderOutcomeUnknownException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.trading.exception;
+
+/**
+ * Thrown for new orders while the trading kill-switch is engaged.
+ */
+public class TradingHaltedException extends RuntimeException {
+    public TradingHaltedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.trading.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Dhan timed out, was rate limiting or failed on its side. Carries the status to
+ * answer with, so clients can tell an upstream outage from a bad request.
+ */
+public class UpstreamFailureException extends RuntimeException {
+    private final HttpStatus status;
+
+    public UpstreamFailureException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
@@ -5,6 +5,7 @@ import lombok.Data;
 @Data
 public class Order {
     private String orderId;
+    private String correlationId;
     private String symbol;
     private String exchange;
     private String transactionType; // BUY/SELL
@@ -0,0 +1,27 @@
+package com.trading.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "order_journal")
+@Data
+public class OrderJournalEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String correlationId;
+
+    private String orderId;
+    private String status;
+    private String symbol;
+    private String exchange;
+    private String transactionType; // BUY/SELL
+    private int quantity;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
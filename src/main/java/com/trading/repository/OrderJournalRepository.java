@@ -0,0 +1,11 @@
+package com.trading.repository;
+
+import com.trading.model.OrderJournalEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+
+@Repository
+public interface OrderJournalRepository extends JpaRepository<OrderJournalEntry, Long> {
+    Optional<OrderJournalEntry> findByCorrelationId(String correlationId);
+}
@@ -0,0 +1,81 @@
+package com.trading.service;
+
+import com.trading.exception.TradingHaltedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Circuit breakers per Dhan endpoint class plus the global trading kill-switch.
+ * Breaker state, rejections and the kill-switch are exported as metrics.
+ */
+@Component
+@Slf4j
+public class DhanGatewayGuard {
+
+    public static final String POSITIONS = "positions";
+    public static final String ORDERS = "orders";
+
+    private final Map<String, CircuitBreaker> breakers = new LinkedHashMap<>();
+    private final Map<String, Counter> rejections = new LinkedHashMap<>();
+    private volatile boolean tradingHalted;
+
+    public DhanGatewayGuard(MeterRegistry meterRegistry,
+                            @Value("${dhan.circuit.failure-threshold:5}") int failureThreshold,
+                            @Value("${dhan.circuit.open-duration-ms:10000}") long openDurationMs,
+                            @Value("${dhan.trading.kill-switch:false}") boolean tradingHalted) {
+        this.tradingHalted = tradingHalted;
+
+        for (String endpoint : new String[]{POSITIONS, ORDERS}) {
+            CircuitBreaker breaker = new CircuitBreaker(endpoint, failureThreshold, openDurationMs);
+            breakers.put(endpoint, breaker);
+
+            // 0 = closed, 1 = half-open, 2 = open
+            Gauge.builder("dhan.gateway.circuit.state", breaker, b -> b.getState().ordinal())
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+            rejections.put(endpoint, Counter.builder("dhan.gateway.circuit.rejected")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry));
+        }
+
+        Gauge.builder("dhan.trading.kill_switch", this, g -> g.tradingHalted ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    public CircuitBreaker breaker(String endpoint) {
+        return breakers.get(endpoint);
+    }
+
+    public void recordRejection(String endpoint) {
+        rejections.get(endpoint).increment();
+    }
+
+    public Map<String, String> getCircuitStates() {
+        Map<String, String> states = new LinkedHashMap<>();
+        breakers.forEach((name, breaker) -> states.put(name, breaker.getState().name()));
+        return states;
+    }
+
+    /** Blocks new exposure; cancels and position exits stay allowed so risk can be cut. */
+    public void checkTradingAllowed() {
+        if (tradingHalted) {
+            throw new TradingHaltedException("Trading is halted by the kill-switch");
+        }
+    }
+
+    public boolean isTradingHalted() {
+        return tradingHalted;
+    }
+
+    public void setTradingHalted(boolean halted) {
+        log.warn("Trading kill-switch {}", halted ? "ENGAGED" : "released");
+        this.tradingHalted = halted;
+    }
+}
@@ -2,20 +2,30 @@ package com.trading.service;
 
 import com.trading.dto.ClosePositionRequest;
 import com.trading.dto.CreateOrderRequest;
+import com.trading.exception.GatewayUnavailableException;
+import com.trading.exception.OrderOutcomeUnknownException;
+import com.trading.exception.UpstreamFailureException;
 import com.trading.model.DhanAccount;
 import com.trading.model.Order;
+import com.trading.model.OrderJournalEntry;
 import com.trading.model.Position;
 import com.trading.repository.DhanAccountRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.UnknownContentTypeException;
 import org.springframework.web.client.ResponseErrorHandler;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -26,16 +36,45 @@ public class DhanService {
     @Autowired
     private DhanAccountRepository accountRepository;
 
+    @Autowired
+    private OrderDedupeCache orderDedupeCache;
+
+    @Autowired
+    private OrderJournalService orderJournalService;
+
+    @Autowired
+    private DhanGatewayGuard gatewayGuard;
+
+    @Value("${dhan.orders.max-retries:2}")
+    private int orderMaxRetries;
+
+    @Value("${dhan.orders.retry-backoff-ms:200}")
+    private long orderRetryBackoffMs;
+
     private final RestTemplate restTemplate;
     private static final String DHAN_BASE_URL = "https://api.dhan.co";
 
-    public DhanService(RestTemplateBuilder restTemplateBuilder) {
+    public DhanService(RestTemplateBuilder restTemplateBuilder,
+                       @Value("${dhan.http.connect-timeout-ms:2000}") long connectTimeoutMs,
+                       @Value("${dhan.http.read-timeout-ms:5000}") long readTimeoutMs) {
+        // Bounded timeouts so a hung order request can be retried instead of blocking forever
         this.restTemplate = restTemplateBuilder
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .readTimeout(Duration.ofMillis(readTimeoutMs))
                 .errorHandler(new RestTemplateErrorHandler())
                 .build();
     }
 
+    @Transactional
     public DhanAccount linkAccount(String clientId, String accessToken) {
+        // Only one account may be active; findByIsActiveTrue would fail on two
+        for (DhanAccount other : accountRepository.findAllByIsActiveTrue()) {
+            if (!other.getClientId().equals(clientId)) {
+                other.setActive(false);
+                accountRepository.save(other);
+            }
+        }
+
         Optional<DhanAccount> existing = accountRepository.findByClientId(clientId);
 
         DhanAccount account;
@@ -72,13 +111,22 @@ public class DhanService {
 
             log.info("Fetching positions from Dhan API: {}", url);
 
-            ResponseEntity<List> response = restTemplate.exchange(
-                    url, HttpMethod.GET, entity, List.class
+            // Read as Object: error responses carry a JSON object, which would fail List extraction
+            ResponseEntity<Object> response = exchange(
+                    DhanGatewayGuard.POSITIONS, url, HttpMethod.GET, entity, Object.class
             );
+            if (isTransient(response.getStatusCode())) {
+                throw upstreamFailure("Fetching positions", response.getStatusCode());
+            }
 
             log.debug("Dhan API Response Body: {}", response.getBody());
 
-            List<Position> positions = parsePositions(response.getBody());
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                throw new RuntimeException("Dhan returned " + response.getStatusCode().value() + ": " + response.getBody());
+            }
+            List<Position> positions = response.getBody() instanceof List
+                    ? parsePositions((List<Map<String, Object>>) response.getBody())
+                    : new ArrayList<>();
 
             log.info("Parsed {} open positions", positions.size());
 
@@ -87,9 +135,17 @@ public class DhanService {
 
             return positions;
 
-        } catch (HttpStatusCodeException e) {
-            log.error("Dhan Positions API returned status {}: {}", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("Failed to fetch positions: " + e.getResponseBodyAsString());
+        } catch (GatewayUnavailableException | UpstreamFailureException e) {
+            throw e;
+        } catch (ResourceAccessException e) {
+            log.error("Dhan Positions API did not answer: {}", e.getMessage());
+            throw upstreamTimeout("Fetching positions");
+        } catch (RestClientResponseException | UnknownContentTypeException e) {
+            log.error("Dhan Positions API returned status {}: {}", statusOf(e), e.getMessage());
+            if (isTransient(statusOf(e))) {
+                throw upstreamFailure("Fetching positions", statusOf(e));
+            }
+            throw new RuntimeException("Failed to fetch positions: " + e.getMessage());
         } catch (Exception e) {
             log.error("Error fetching positions from Dhan", e);
             throw new RuntimeException("Failed to fetch positions: " + e.getMessage());
@@ -97,50 +153,30 @@ public class DhanService {
     }
 
     public Order createOrder(CreateOrderRequest request) {
+        gatewayGuard.checkTradingAllowed();
+
         Optional<DhanAccount> account = getActiveAccount();
         if (account.isEmpty()) {
             throw new RuntimeException("No active Dhan account linked");
         }
 
-        try {
-            HttpHeaders headers = getDhanHeaders(account.get().getAccessToken());
+        String correlationId = resolveCorrelationId(request.getCorrelationId());
 
-            Map<String, Object> orderData = new HashMap<>();
-            orderData.put("dhanClientId", account.get().getClientId());
-            orderData.put("transactionType", request.getTransactionType());
-            orderData.put("exchangeSegment", request.getExchange());
-            orderData.put("productType", request.getProductType());
-            orderData.put("orderType", request.getOrderType());
-            orderData.put("quantity", request.getQuantity());
-            orderData.put("securityId", request.getSymbol()); // In your App.jsx, symbol is passed as securityId
-            orderData.put("validity", "DAY");
+        return orderDedupeCache.submitOnce(correlationId, () -> {
+            HttpHeaders headers = getDhanHeaders(account.get().getAccessToken());
 
-            if ("LIMIT".equals(request.getOrderType())) {
-                orderData.put("price", request.getPrice());
-            }
+            Map<String, Object> orderData = buildOrderPayload(account.get(), request, correlationId);
 
             log.info("Sending Order to Dhan: {}", orderData);
 
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(orderData, headers);
-
-            String url = DHAN_BASE_URL + "/v2/orders";
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url, HttpMethod.POST, entity, Map.class
-            );
-
-            log.info("Order Response: {}", response.getBody());
-
-            // 🌟 FIX: Parse the REAL response from Dhan
-            return parseOrder(response.getBody());
-
-        } catch (HttpStatusCodeException e) {
-            log.error("Dhan Orders API Error {}: {}", e.getStatusCode(), e.getResponseBodyAsString());
-            // 🌟 FIX: Throw exception so frontend sees the error instead of "Order Placed"
-            throw new RuntimeException(e.getResponseBodyAsString());
-        } catch (Exception e) {
-            log.error("Error creating order on Dhan: {}", e.getMessage());
-            throw new RuntimeException(e.getMessage());
-        }
+            Order intent = new Order();
+            intent.setCorrelationId(correlationId);
+            intent.setSymbol(request.getSymbol());
+            intent.setExchange(request.getExchange());
+            intent.setTransactionType(request.getTransactionType());
+            intent.setQuantity(request.getQuantity());
+            return placeOrder(orderData, headers, intent);
+        });
     }
 
     public Order closeOrder(String orderId) {
@@ -154,15 +190,28 @@ public class DhanService {
             HttpEntity<String> entity = new HttpEntity<>(headers);
 
             String url = DHAN_BASE_URL + "/v2/orders/" + orderId;
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url, HttpMethod.DELETE, entity, Map.class
+            ResponseEntity<Map> response = exchange(
+                    DhanGatewayGuard.ORDERS, url, HttpMethod.DELETE, entity, Map.class
             );
 
+            if (isTransient(response.getStatusCode())) {
+                throw upstreamFailure("Cancelling order " + orderId, response.getStatusCode());
+            }
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                log.error("Dhan Close Order API Error {}: {}", response.getStatusCode(), response.getBody());
+                throw new RuntimeException(String.valueOf(response.getBody()));
+            }
             return parseOrder(response.getBody());
 
-        } catch (HttpStatusCodeException e) {
-            log.error("Dhan Close Order API Error {}: {}", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException(e.getResponseBodyAsString());
+        } catch (ResourceAccessException e) {
+            log.error("Dhan Close Order API did not answer: {}", e.getMessage());
+            throw upstreamTimeout("Cancelling order " + orderId);
+        } catch (RestClientResponseException | UnknownContentTypeException e) {
+            log.error("Dhan Close Order API Error {}: {}", statusOf(e), e.getMessage());
+            if (isTransient(statusOf(e))) {
+                throw upstreamFailure("Cancelling order " + orderId, statusOf(e));
+            }
+            throw new RuntimeException(e.getMessage());
         }
     }
 
@@ -172,12 +221,15 @@ public class DhanService {
             throw new RuntimeException("No active Dhan account linked");
         }
 
-        try {
+        String correlationId = resolveCorrelationId(request.getCorrelationId());
+
+        return orderDedupeCache.submitOnce(correlationId, () -> {
             String transactionType = "LONG".equals(request.getPositionType()) ? "SELL" : "BUY";
             HttpHeaders headers = getDhanHeaders(account.get().getAccessToken());
 
             Map<String, Object> orderData = new HashMap<>();
             orderData.put("dhanClientId", account.get().getClientId());
+            orderData.put("correlationId", correlationId);
             orderData.put("transactionType", transactionType);
             orderData.put("exchangeSegment", request.getExchange());
             orderData.put("productType", request.getProductType());
@@ -188,21 +240,285 @@ public class DhanService {
 
             log.info("Closing Position: {}", orderData);
 
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(orderData, headers);
-            String url = DHAN_BASE_URL + "/v2/orders";
+            Order intent = new Order();
+            intent.setCorrelationId(correlationId);
+            intent.setSymbol(request.getSymbol());
+            intent.setExchange(request.getExchange());
+            intent.setTransactionType(transactionType);
+            intent.setQuantity(request.getQuantity());
+            return placeOrder(orderData, headers, intent);
+        });
+    }
+
+    Map<String, Object> buildOrderPayload(DhanAccount account, CreateOrderRequest request, String correlationId) {
+        Map<String, Object> orderData = new HashMap<>();
+        orderData.put("dhanClientId", account.getClientId());
+        orderData.put("correlationId", correlationId);
+        orderData.put("transactionType", request.getTransactionType());
+        orderData.put("exchangeSegment", request.getExchange());
+        orderData.put("productType", request.getProductType());
+        orderData.put("orderType", request.getOrderType());
+        orderData.put("quantity", request.getQuantity());
+        orderData.put("securityId", request.getSymbol()); // In your App.jsx, symbol is passed as securityId
+        orderData.put("validity", "DAY");
+
+        if ("LIMIT".equals(request.getOrderType())) {
+            orderData.put("price", request.getPrice());
+        }
+        return orderData;
+    }
+
+    /**
+     * Journals the attempt, sends it and records the outcome. The journal is what
+     * tells a first attempt from a retry: only an id with an earlier, unresolved
+     * attempt costs a lookup on Dhan before it is sent.
+     */
+    private Order placeOrder(Map<String, Object> orderData, HttpHeaders headers, Order intent) {
+        String correlationId = intent.getCorrelationId();
+
+        Optional<OrderJournalEntry> journaled = orderJournalService.find(correlationId);
+        if (journaled.isPresent() && journaled.get().getOrderId() != null) {
+            log.info("Order {} already accepted by Dhan as {}, not resubmitting",
+                    correlationId, journaled.get().getOrderId());
+            return OrderJournalService.toOrder(journaled.get());
+        }
+        boolean attemptedBefore = journaled.isPresent();
+        if (!attemptedBefore) {
+            orderJournalService.recordPending(correlationId, intent);
+        }
+
+        Order order;
+        try {
+            order = submitOrder(orderData, headers, correlationId, attemptedBefore);
+        } catch (OrderOutcomeUnknownException e) {
+            // Keep the pending row so the next attempt with this id asks Dhan first
+            throw e;
+        } catch (RuntimeException e) {
+            orderJournalService.discard(correlationId);
+            throw e;
+        }
+
+        order.setSymbol(intent.getSymbol());
+        order.setExchange(intent.getExchange());
+        order.setTransactionType(intent.getTransactionType());
+        order.setQuantity(intent.getQuantity());
+        orderJournalService.recordAccepted(correlationId, order);
+        return order;
+    }
+
+    /**
+     * Places an order and retries transient failures (timeouts, 429, 5xx).
+     * Before each resubmission Dhan is asked whether it already holds an order with
+     * this correlationId; if that cannot be answered, the outcome is reported as
+     * unknown rather than risking a second fill.
+     */
+    private Order submitOrder(Map<String, Object> orderData, HttpHeaders headers, String correlationId,
+                              boolean attemptedBefore) {
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(orderData, headers);
+        String url = DHAN_BASE_URL + "/v2/orders";
+        String lastError = null;
+        boolean ambiguous = false;
+
+        // An earlier attempt with this id may have reached Dhan without its answer reaching us
+        if (attemptedBefore) {
+            Order existing = findOrderByCorrelationId(headers, correlationId);
+            if (existing != null) {
+                log.info("Order {} already accepted by Dhan as {}, not resubmitting", correlationId, existing.getOrderId());
+                return existing;
+            }
+        }
+
+        for (int attempt = 0; attempt <= orderMaxRetries; attempt++) {
+            if (attempt > 0) {
+                if (ambiguous) {
+                    Order existing = findOrderByCorrelationId(headers, correlationId);
+                    if (existing != null) {
+                        log.info("Order {} already accepted by Dhan as {}, not resubmitting", correlationId, existing.getOrderId());
+                        return existing;
+                    }
+                }
+                sleepBeforeRetry(attempt);
+                log.warn("Retrying order {} (attempt {} of {})", correlationId, attempt, orderMaxRetries);
+            }
+
+            try {
+                ResponseEntity<Map> response = exchange(
+                        DhanGatewayGuard.ORDERS, url, HttpMethod.POST, entity, Map.class
+                );
+
+                log.info("Order Response: {}", response.getBody());
 
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url, HttpMethod.POST, entity, Map.class
+                if (response.getStatusCode().is2xxSuccessful()) {
+                    return parseOrder(response.getBody());
+                }
+
+                lastError = String.valueOf(response.getBody());
+                log.error("Dhan Orders API Error {}: {}", response.getStatusCode(), lastError);
+                if (!isTransient(response.getStatusCode())) {
+                    throw new RuntimeException(lastError);
+                }
+                // 429 means the order was turned away; a 5xx may have been raised after acceptance
+                ambiguous |= response.getStatusCode().is5xxServerError();
+
+            } catch (ResourceAccessException e) {
+                lastError = e.getMessage();
+                ambiguous = true;
+                log.warn("Order {} did not reach Dhan cleanly: {}", correlationId, lastError);
+            } catch (RestClientResponseException | UnknownContentTypeException e) {
+                // Error pages (e.g. an HTML 502 from a load balancer) can't be read as JSON
+                HttpStatusCode status = statusOf(e);
+                lastError = status + " " + e.getMessage();
+                log.error("Dhan Orders API Error {}: {}", status, e.getMessage());
+                if (!isTransient(status)) {
+                    throw new RuntimeException(lastError);
+                }
+                ambiguous |= status.is5xxServerError();
+            }
+        }
+
+        if (!ambiguous) {
+            throw new RuntimeException("Order " + correlationId + " failed after retries: " + lastError);
+        }
+
+        // Out of retries: one last look before telling the client the outcome is unknown
+        Order existing = findOrderByCorrelationId(headers, correlationId);
+        if (existing != null) {
+            log.info("Order {} already accepted by Dhan as {}", correlationId, existing.getOrderId());
+            return existing;
+        }
+        throw new OrderOutcomeUnknownException("Order " + correlationId
+                + " may not have reached Dhan (" + lastError + "); retry with the same correlationId");
+    }
+
+    /**
+     * Returns the order Dhan holds under {@code correlationId}, or null when Dhan
+     * answers that it has none. Throws OrderOutcomeUnknownException when Dhan cannot
+     * answer, since treating that as "not found" would invite a duplicate. Lookups
+     * only happen once an attempt may have reached Dhan, so an open circuit here
+     * is also an unknown outcome, not a rejection.
+     */
+    private Order findOrderByCorrelationId(HttpHeaders headers, String correlationId) {
+        ResponseEntity<Object> response;
+        try {
+            String url = DHAN_BASE_URL + "/v2/orders/external/" + correlationId;
+            response = exchange(
+                    DhanGatewayGuard.ORDERS, url, HttpMethod.GET, new HttpEntity<>(headers), Object.class
             );
+        } catch (GatewayUnavailableException e) {
+            log.warn("Could not look up order {} on Dhan: {}", correlationId, e.getMessage());
+            throw new OrderOutcomeUnknownException("Could not confirm order " + correlationId
+                    + " with Dhan; retry with the same correlationId");
+        } catch (ResourceAccessException e) {
+            log.warn("Could not look up order {} on Dhan: {}", correlationId, e.getMessage());
+            throw new OrderOutcomeUnknownException("Could not confirm order " + correlationId
+                    + " with Dhan; retry with the same correlationId");
+        } catch (RestClientResponseException | UnknownContentTypeException e) {
+            if (!isTransient(statusOf(e))) return null;
+            log.warn("Order lookup for {} returned {}", correlationId, statusOf(e));
+            throw new OrderOutcomeUnknownException("Could not confirm order " + correlationId
+                    + " with Dhan; retry with the same correlationId");
+        }
 
-            Order order = parseOrder(response.getBody());
-            order.setSymbol(request.getSymbol());
-            return order;
+        if (isTransient(response.getStatusCode())) {
+            log.warn("Order lookup for {} returned {}", correlationId, response.getStatusCode());
+            throw new OrderOutcomeUnknownException("Could not confirm order " + correlationId
+                    + " with Dhan; retry with the same correlationId");
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) return null;
 
-        } catch (HttpStatusCodeException e) {
-            log.error("Dhan Close Position Error {}: {}", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("Failed to close position: " + e.getResponseBodyAsString());
+        Object body = response.getBody();
+        if (body instanceof List && !((List<?>) body).isEmpty()) {
+            body = ((List<?>) body).get(0);
+        }
+        if (body instanceof Map) {
+            Order order = parseOrder((Map<String, Object>) body);
+            return order.getOrderId() != null ? order : null;
         }
+        return null;
+    }
+
+    /**
+     * All Dhan calls go through here so the endpoint's circuit breaker sees every
+     * outcome. Timeouts, 429 and 5xx count as failures, including error responses
+     * whose body could not be read; while the circuit is open
+     * this throws GatewayUnavailableException without touching the network.
+     */
+    private <T> ResponseEntity<T> exchange(String endpoint, String url, HttpMethod method,
+                                           HttpEntity<?> entity, Class<T> responseType) {
+        CircuitBreaker breaker = gatewayGuard.breaker(endpoint);
+        try {
+            breaker.acquirePermission();
+        } catch (GatewayUnavailableException e) {
+            gatewayGuard.recordRejection(endpoint);
+            throw e;
+        }
+
+        try {
+            ResponseEntity<T> response = restTemplate.exchange(url, method, entity, responseType);
+            if (isTransient(response.getStatusCode())) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+            return response;
+        } catch (ResourceAccessException e) {
+            breaker.onFailure();
+            throw e;
+        } catch (RestClientResponseException | UnknownContentTypeException e) {
+            // A degraded Dhan often answers 502/503 with an HTML page that fails JSON extraction
+            if (isTransient(statusOf(e))) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            // Dhan answered with a healthy status, but the body could not be read
+            breaker.onSuccess();
+            throw e;
+        }
+    }
+
+    // A timeout leaves the call's effect unknown; a 429 or 5xx means Dhan itself is struggling
+    private UpstreamFailureException upstreamTimeout(String action) {
+        return new UpstreamFailureException(HttpStatus.GATEWAY_TIMEOUT, action + " timed out waiting for Dhan");
+    }
+
+    private UpstreamFailureException upstreamFailure(String action, HttpStatusCode status) {
+        HttpStatus mapped = status.value() == 429 ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.BAD_GATEWAY;
+        return new UpstreamFailureException(mapped, action + " failed: Dhan returned " + status.value());
+    }
+
+    private HttpStatusCode statusOf(RestClientException e) {
+        if (e instanceof RestClientResponseException) {
+            return ((RestClientResponseException) e).getStatusCode();
+        }
+        return ((UnknownContentTypeException) e).getStatusCode();
+    }
+
+    private boolean isTransient(HttpStatusCode status) {
+        return status.is5xxServerError() || status.value() == 429;
+    }
+
+    private void sleepBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(orderRetryBackoffMs * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying order");
+        }
+    }
+
+    private String resolveCorrelationId(String correlationId) {
+        if (hasText(correlationId)) {
+            return correlationId;
+        }
+        // Dhan caps correlationId length, so use a trimmed UUID
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 20);
+    }
+
+    private boolean hasText(String value) {
+        return value != null && !value.isBlank();
     }
 
     private HttpHeaders getDhanHeaders(String accessToken) {
@@ -212,7 +528,7 @@ public class DhanService {
         return headers;
     }
 
-    private List<Position> parsePositions(List<Map<String, Object>> responseList) {
+    List<Position> parsePositions(List<Map<String, Object>> responseList) {
         List<Position> positions = new ArrayList<>();
         if (responseList == null || responseList.isEmpty()) return positions;
 
@@ -272,6 +588,7 @@ public class DhanService {
         if (response != null) {
             order.setOrderId(getStringValue(response, "orderId"));
             order.setStatus(getStringValue(response, "orderStatus"));
+            order.setCorrelationId(getStringValue(response, "correlationId"));
             // Add other fields if needed
         }
         return order;
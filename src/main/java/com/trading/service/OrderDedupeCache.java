@@ -0,0 +1,134 @@
+package com.trading.service;
+
+import com.trading.model.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, time-evicting cache of order submissions keyed by correlationId.
+ * A second submission with the same id (UI double-click, client retry after a
+ * timeout) joins the first one instead of reaching Dhan again.
+ */
+@Component
+@Slf4j
+public class OrderDedupeCache {
+
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    // Insertion ordered, so the eldest entry is always the first one to expire
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    public OrderDedupeCache(
+            @Value("${dhan.orders.dedupe-ttl-seconds:300}") long ttlSeconds,
+            @Value("${dhan.orders.dedupe-max-entries:10000}") int maxEntries) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Runs {@code submission} once per correlationId within the TTL window.
+     * Failed submissions are forgotten so the caller may try the same id again.
+     */
+    public Order submitOnce(String correlationId, Supplier<Order> submission) {
+        CompletableFuture<Order> future;
+        boolean owner = false;
+
+        synchronized (entries) {
+            long now = System.currentTimeMillis();
+            evictExpired(now);
+
+            Entry existing = entries.get(correlationId);
+            if (existing != null) {
+                future = existing.future;
+            } else {
+                if (entries.size() >= maxEntries) {
+                    evictEldestCompleted();
+                }
+                future = new CompletableFuture<>();
+                entries.put(correlationId, new Entry(future, now));
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            log.info("Duplicate order submission for correlationId {}, reusing first result", correlationId);
+            return join(future);
+        }
+
+        try {
+            Order order = submission.get();
+            future.complete(order);
+            return order;
+        } catch (Throwable t) {
+            // Complete on Errors too, or callers joined on this id would hang forever
+            synchronized (entries) {
+                entries.remove(correlationId);
+            }
+            future.completeExceptionally(t);
+            throw t;
+        }
+    }
+
+    /**
+     * Re-inserts an order that was accepted before a restart. Callers must restore
+     * in ascending {@code createdAt} order to keep eviction order intact.
+     */
+    public void restore(String correlationId, Order order, long createdAt) {
+        synchronized (entries) {
+            entries.put(correlationId, new Entry(CompletableFuture.completedFuture(order), createdAt));
+        }
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    // In-flight submissions are never evicted; dropping one would let its duplicate through
+    private void evictExpired(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (now - entry.createdAt < ttlMillis) break;
+            if (entry.future.isDone()) it.remove();
+        }
+    }
+
+    private void evictEldestCompleted() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().future.isDone()) {
+                it.remove();
+                return;
+            }
+        }
+        // Everything is in flight; go over the bound until one completes
+    }
+
+    private Order join(CompletableFuture<Order> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+    private static class Entry {
+        final CompletableFuture<Order> future;
+        final long createdAt;
+
+        Entry(CompletableFuture<Order> future, long createdAt) {
+            this.future = future;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.trading.service;
+
+import com.trading.model.Order;
+import com.trading.model.OrderJournalEntry;
+import com.trading.repository.OrderJournalRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Durable record of every order sent to Dhan. An attempt is journaled before the
+ * POST with no orderId and filled in once Dhan accepts it, so a row without an
+ * orderId marks an order whose outcome was never seen. On startup the recent
+ * accepted orders are replayed into {@link OrderDedupeCache}, so a client retrying
+ * after a crash mid-session still gets the original order back.
+ */
+@Service
+@Slf4j
+public class OrderJournalService {
+
+    @Autowired
+    private OrderJournalRepository journalRepository;
+
+    @Autowired
+    private OrderDedupeCache orderDedupeCache;
+
+    @Autowired
+    private JdbcOperations jdbcOperations;
+
+    @PostConstruct
+    public void restoreState() {
+        long start = System.nanoTime();
+        int restored = restoreRecentOrders(jdbcOperations, orderDedupeCache);
+        log.info("Restored state in {} ms: {} recent orders",
+                (System.nanoTime() - start) / 1_000_000, restored);
+    }
+
+    /**
+     * Replays journal entries still inside the dedupe TTL into {@code cache}.
+     * Plain JDBC on the created_at index: this runs on the boot path, where the
+     * first Hibernate query alone costs hundreds of milliseconds.
+     */
+    static int restoreRecentOrders(JdbcOperations jdbc, OrderDedupeCache cache) {
+        Timestamp since = Timestamp.valueOf(LocalDateTime.now().minusNanos(cache.getTtlMillis() * 1_000_000));
+        int[] restored = {0};
+
+        jdbc.query("SELECT correlation_id, order_id, status, symbol, exchange, transaction_type, quantity, created_at"
+                        + " FROM order_journal WHERE created_at > ? AND order_id IS NOT NULL ORDER BY created_at",
+                rs -> {
+                    Order order = new Order();
+                    order.setCorrelationId(rs.getString("correlation_id"));
+                    order.setOrderId(rs.getString("order_id"));
+                    order.setStatus(rs.getString("status"));
+                    order.setSymbol(rs.getString("symbol"));
+                    order.setExchange(rs.getString("exchange"));
+                    order.setTransactionType(rs.getString("transaction_type"));
+                    order.setQuantity(rs.getInt("quantity"));
+                    cache.restore(order.getCorrelationId(), order, rs.getTimestamp("created_at").getTime());
+                    restored[0]++;
+                },
+                since);
+        return restored[0];
+    }
+
+    public Optional<OrderJournalEntry> find(String correlationId) {
+        return journalRepository.findByCorrelationId(correlationId);
+    }
+
+    /**
+     * Journals an attempt before it is sent. Failures propagate: nothing has reached
+     * Dhan yet, and an unjournaled attempt could be resent blind after a restart.
+     */
+    public void recordPending(String correlationId, Order intent) {
+        OrderJournalEntry entry = new OrderJournalEntry();
+        entry.setCorrelationId(correlationId);
+        entry.setSymbol(intent.getSymbol());
+        entry.setExchange(intent.getExchange());
+        entry.setTransactionType(intent.getTransactionType());
+        entry.setQuantity(intent.getQuantity());
+        entry.setCreatedAt(LocalDateTime.now());
+        journalRepository.save(entry);
+    }
+
+    public void recordAccepted(String correlationId, Order order) {
+        try {
+            OrderJournalEntry entry = journalRepository.findByCorrelationId(correlationId).orElseGet(() -> {
+                OrderJournalEntry created = new OrderJournalEntry();
+                created.setCorrelationId(correlationId);
+                created.setCreatedAt(LocalDateTime.now());
+                return created;
+            });
+            entry.setOrderId(order.getOrderId());
+            entry.setStatus(order.getStatus());
+            entry.setSymbol(order.getSymbol());
+            entry.setExchange(order.getExchange());
+            entry.setTransactionType(order.getTransactionType());
+            entry.setQuantity(order.getQuantity());
+            journalRepository.save(entry);
+        } catch (Exception e) {
+            // The order is already live at Dhan; a journal failure must not report it as failed
+            log.error("Failed to journal order {}: {}", correlationId, e.getMessage());
+        }
+    }
+
+    /** Drops a pending attempt that Dhan definitely did not accept, so the id can be sent again directly. */
+    public void discard(String correlationId) {
+        try {
+            journalRepository.findByCorrelationId(correlationId)
+                    .filter(entry -> entry.getOrderId() == null)
+                    .ifPresent(journalRepository::delete);
+        } catch (Exception e) {
+            // A leftover pending row only costs one lookup on the next attempt
+            log.error("Failed to discard journaled attempt {}: {}", correlationId, e.getMessage());
+        }
+    }
+
+    static Order toOrder(OrderJournalEntry entry) {
+        Order order = new Order();
+        order.setCorrelationId(entry.getCorrelationId());
+        order.setOrderId(entry.getOrderId());
+        order.setStatus(entry.getStatus());
+        order.setSymbol(entry.getSymbol());
+        order.setExchange(entry.getExchange());
+        order.setTransactionType(entry.getTransactionType());
+        order.setQuantity(entry.getQuantity());
+        return order;
+    }
+}
@@ -1,90 +1,169 @@
 package com.trading.service;
 
 import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
 import com.trading.model.SecurityMaster;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class SecurityMasterService {
 
-    private List<SecurityMaster> securityList = new ArrayList<>();
     private static final String SECURITY_MASTER_URL = "https://images.dhan.co/api-data/api-scrip-master.csv";
 
+    private final int maxCachedResults;
+    private final int maxCandidateLists;
+    private final int maxCandidateSize;
+
+    // Securities and their search cache are swapped together, so a reload can never serve stale hits
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList(), new SymbolSearchCache(0, 0, 0));
+
+    public SecurityMasterService(@Value("${dhan.symbols.cache.max-results:1000}") int maxCachedResults,
+                                 @Value("${dhan.symbols.cache.max-candidate-lists:256}") int maxCandidateLists,
+                                 @Value("${dhan.symbols.cache.max-candidate-size:5000}") int maxCandidateSize) {
+        this.maxCachedResults = maxCachedResults;
+        this.maxCandidateLists = maxCandidateLists;
+        this.maxCandidateSize = maxCandidateSize;
+    }
+
     @PostConstruct
+    @Scheduled(cron = "${dhan.symbols.reload-cron:0 30 8 * * MON-FRI}", zone = "Asia/Kolkata")
     public void loadSecurityMaster() {
         try {
             log.info("Loading security master from Dhan...");
             URL url = new URL(SECURITY_MASTER_URL);
 
-            try (CSVReader reader = new CSVReader(new InputStreamReader(url.openStream()))) {
-                String[] parts;
-                reader.readNext(); // Skip header row
-
-                while ((parts = reader.readNext()) != null) {
-                    // Dhan Compact CSV Format:
-                    // 0: SEM_EXM_EXCH_ID (Exchange)
-                    // 1: SEM_SEGMENT (Segment)
-                    // 2: SEM_SMST_SECURITY_ID (Security ID)
-                    // 3: SEM_GMT_INSTRUMENT_TYPE (Instrument Type)
-                    // 4: SEM_INSTRUMENT_NAME (Name)
-                    // 5: SEM_TRADING_SYMBOL (Symbol)
-                    // 6: SEM_EXPIRY_DATE (Expiry)
-                    // 7: SEM_TICK_SIZE (Tick Size)
-                    // 8: SEM_LOT_UNITS (Lot Size)
-
-                    if (parts.length >= 6) {
-                        SecurityMaster security = new SecurityMaster();
-                        security.setExchangeSegment(parts[0].trim()); // e.g., NSE
-                        security.setSecurityId(parts[2].trim());
-                        security.setInstrumentType(parts[3].trim());  // e.g., EQUITY, OPTIDX
-                        security.setName(parts[4].trim());
-                        security.setTradingSymbol(parts[5].trim());
-
-                        if (parts.length > 7) {
-                            try {
-                                security.setTickSize(Double.parseDouble(parts[7].trim()));
-                            } catch (Exception e) {
-                                security.setTickSize(0.05);
-                            }
-                        }
+            List<SecurityMaster> securityList;
+            try (Reader reader = new InputStreamReader(url.openStream())) {
+                securityList = parseSecurityMaster(reader);
+            }
+
+            loadSecurities(securityList);
+            log.info("Loaded {} securities from Dhan", securityList.size());
+
+        } catch (Exception e) {
+            log.error("Failed to load security master: {}", e.getMessage());
+        }
+    }
 
-                        if (parts.length > 8) {
-                            try {
-                                security.setLotSize(Integer.parseInt(parts[8].trim()));
-                            } catch (Exception e) {
-                                security.setLotSize(1);
-                            }
+    List<SecurityMaster> parseSecurityMaster(Reader source) throws IOException, CsvValidationException {
+        List<SecurityMaster> securityList = new ArrayList<>();
+
+        try (CSVReader reader = new CSVReader(source)) {
+            String[] parts;
+            reader.readNext(); // Skip header row
+
+            while ((parts = reader.readNext()) != null) {
+                // Dhan Compact CSV Format:
+                // 0: SEM_EXM_EXCH_ID (Exchange)
+                // 1: SEM_SEGMENT (Segment)
+                // 2: SEM_SMST_SECURITY_ID (Security ID)
+                // 3: SEM_GMT_INSTRUMENT_TYPE (Instrument Type)
+                // 4: SEM_INSTRUMENT_NAME (Name)
+                // 5: SEM_TRADING_SYMBOL (Symbol)
+                // 6: SEM_EXPIRY_DATE (Expiry)
+                // 7: SEM_TICK_SIZE (Tick Size)
+                // 8: SEM_LOT_UNITS (Lot Size)
+
+                if (parts.length >= 6) {
+                    SecurityMaster security = new SecurityMaster();
+                    security.setExchangeSegment(parts[0].trim()); // e.g., NSE
+                    security.setSecurityId(parts[2].trim());
+                    security.setInstrumentType(parts[3].trim());  // e.g., EQUITY, OPTIDX
+                    security.setName(parts[4].trim());
+                    security.setTradingSymbol(parts[5].trim());
+
+                    if (parts.length > 7) {
+                        try {
+                            security.setTickSize(Double.parseDouble(parts[7].trim()));
+                        } catch (Exception e) {
+                            security.setTickSize(0.05);
                         }
+                    }
 
-                        securityList.add(security);
+                    if (parts.length > 8) {
+                        try {
+                            security.setLotSize(Integer.parseInt(parts[8].trim()));
+                        } catch (Exception e) {
+                            security.setLotSize(1);
+                        }
                     }
+
+                    securityList.add(security);
                 }
             }
+        }
 
-            log.info("Loaded {} securities from Dhan", securityList.size());
+        return securityList;
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to load security master: {}", e.getMessage());
-        }
+    void loadSecurities(List<SecurityMaster> securityList) {
+        snapshot = new Snapshot(
+                Collections.unmodifiableList(securityList),
+                new SymbolSearchCache(maxCachedResults, maxCandidateLists, maxCandidateSize)
+        );
     }
 
     public List<SecurityMaster> searchSymbols(String query, String exchange, int limit) {
         String searchQuery = query.toUpperCase();
+        String searchExchange = exchange == null ? "" : exchange;
+        Snapshot current = snapshot;
+        SymbolSearchCache cache = current.searchCache;
+
+        String key = SymbolSearchCache.resultKey(searchQuery, searchExchange, limit);
+        List<SecurityMaster> cached = cache.getResult(key);
+        if (cached != null) return cached;
+
+        CompletableFuture<List<SecurityMaster>> pending = new CompletableFuture<>();
+        CompletableFuture<List<SecurityMaster>> running = cache.inFlight.putIfAbsent(key, pending);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                if (e.getCause() instanceof Error) throw (Error) e.getCause();
+                throw e;
+            }
+        }
+
+        try {
+            List<SecurityMaster> results = computeSearch(current, searchQuery, searchExchange, limit);
+            cache.putResult(key, results);
+            pending.complete(results);
+            return results;
+        } catch (Throwable t) {
+            // Complete on Errors too, or searches joined on this key would hang forever
+            pending.completeExceptionally(t);
+            throw t;
+        } finally {
+            cache.inFlight.remove(key, pending);
+        }
+    }
+
+    private List<SecurityMaster> computeSearch(Snapshot current, String searchQuery, String exchange, int limit) {
+        // Typeahead queries grow one letter at a time, so start from the shorter query's matches
+        List<SecurityMaster> source = current.searchCache.findCandidates(searchQuery, exchange);
+        if (source == null) source = current.securities;
 
-        return securityList.stream()
+        List<SecurityMaster> matches = source.stream()
                 .filter(s -> {
                     // Filter by Exchange (e.g., NSE)
-                    boolean matchesExchange = exchange == null ||
-                            exchange.isEmpty() ||
+                    boolean matchesExchange = exchange.isEmpty() ||
                             (s.getExchangeSegment() != null && s.getExchangeSegment().startsWith(exchange));
 
                     // Filter by Query in Symbol or Name
@@ -93,6 +172,10 @@ public class SecurityMasterService {
 
                     return matchesExchange && matchesQuery;
                 })
+                .collect(Collectors.toList());
+        current.searchCache.putCandidates(searchQuery, exchange, Collections.unmodifiableList(matches));
+
+        return matches.stream()
                 // 🌟 FIX: Sort to prioritize Equities and Exact Matches 🌟
                 .sorted((s1, s2) -> {
                     // 1. Prioritize Exact Match
@@ -115,13 +198,23 @@ public class SecurityMasterService {
                     return s1.getTradingSymbol().compareTo(s2.getTradingSymbol());
                 })
                 .limit(limit)
-                .collect(Collectors.toList());
+                .collect(Collectors.toUnmodifiableList());
     }
 
     public SecurityMaster getBySecurityId(String securityId) {
-        return securityList.stream()
+        return snapshot.securities.stream()
                 .filter(s -> s.getSecurityId().equals(securityId))
                 .findFirst()
                 .orElse(null);
     }
+
+    private static class Snapshot {
+        final List<SecurityMaster> securities;
+        final SymbolSearchCache searchCache;
+
+        Snapshot(List<SecurityMaster> securities, SymbolSearchCache searchCache) {
+            this.securities = securities;
+            this.searchCache = searchCache;
+        }
+    }
 }
\ No newline at end of file
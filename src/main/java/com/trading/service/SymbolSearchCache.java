@@ -0,0 +1,80 @@
+package com.trading.service;
+
+import com.trading.model.SecurityMaster;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Search caches for one loaded generation of the security master. A reload
+ * builds a fresh instance, so stale results are dropped in a single swap.
+ */
+class SymbolSearchCache {
+
+    // Final sorted and limited results, keyed by exchange|limit|query
+    private final Map<String, List<SecurityMaster>> results;
+
+    // Unsorted matches per exchange|query, used to narrow longer queries
+    private final Map<String, List<SecurityMaster>> candidates;
+    private final int maxCandidateSize;
+
+    // Searches currently being computed, so concurrent identical keystrokes share one scan
+    final ConcurrentHashMap<String, CompletableFuture<List<SecurityMaster>>> inFlight = new ConcurrentHashMap<>();
+
+    SymbolSearchCache(int maxResults, int maxCandidateLists, int maxCandidateSize) {
+        this.results = lruMap(maxResults);
+        this.candidates = lruMap(maxCandidateLists);
+        this.maxCandidateSize = maxCandidateSize;
+    }
+
+    static String resultKey(String query, String exchange, int limit) {
+        return exchange + "|" + limit + "|" + query;
+    }
+
+    List<SecurityMaster> getResult(String key) {
+        synchronized (results) {
+            return results.get(key);
+        }
+    }
+
+    void putResult(String key, List<SecurityMaster> result) {
+        synchronized (results) {
+            results.put(key, result);
+        }
+    }
+
+    /**
+     * Returns the matches cached for the longest prefix of {@code query}, or null.
+     * Anything matching the full query also matches its prefix, so these are a
+     * complete superset to filter from.
+     */
+    List<SecurityMaster> findCandidates(String query, String exchange) {
+        synchronized (candidates) {
+            for (int len = query.length(); len > 0; len--) {
+                List<SecurityMaster> hit = candidates.get(exchange + "|" + query.substring(0, len));
+                if (hit != null) return hit;
+            }
+            return null;
+        }
+    }
+
+    void putCandidates(String query, String exchange, List<SecurityMaster> matches) {
+        // Broad one- or two-letter queries match huge slices of the master; not worth holding
+        if (matches.size() > maxCandidateSize) return;
+        synchronized (candidates) {
+            candidates.put(exchange + "|" + query, matches);
+        }
+    }
+
+    private static <V> Map<String, V> lruMap(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
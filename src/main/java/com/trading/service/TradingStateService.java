@@ -0,0 +1,50 @@
+package com.trading.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps the kill-switch in the state store so a halt survives a restart. The
+ * {@code dhan.trading.kill-switch} property can still halt trading at boot, but a
+ * persisted halt is never lifted by it.
+ */
+@Service
+@Slf4j
+public class TradingStateService {
+
+    static final String KILL_SWITCH = "kill_switch";
+
+    @Autowired
+    private JdbcOperations jdbcOperations;
+
+    @Autowired
+    private DhanGatewayGuard gatewayGuard;
+
+    @PostConstruct
+    public void restoreKillSwitch() {
+        List<String> stored = jdbcOperations.queryForList(
+                "SELECT state_value FROM trading_state WHERE state_key = ?", String.class, KILL_SWITCH);
+        if (!stored.isEmpty() && Boolean.parseBoolean(stored.get(0)) && !gatewayGuard.isTradingHalted()) {
+            log.warn("Restoring engaged kill-switch from state store");
+            gatewayGuard.setTradingHalted(true);
+        }
+    }
+
+    /**
+     * Applies the switch before persisting it: if the write fails, an engage still
+     * halts trading for this run, and the failure is reported to the caller.
+     */
+    public void setTradingHalted(boolean halted) {
+        gatewayGuard.setTradingHalted(halted);
+        jdbcOperations.update(
+                "MERGE INTO trading_state (state_key, state_value, updated_at) KEY (state_key) VALUES (?, ?, ?)",
+                KILL_SWITCH, String.valueOf(halted), Timestamp.valueOf(LocalDateTime.now()));
+    }
+}
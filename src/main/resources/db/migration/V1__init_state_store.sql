@@ -0,0 +1,32 @@
+CREATE TABLE dhan_account (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    client_id       VARCHAR(255),
+    access_token    VARCHAR(1024),
+    is_active       BOOLEAN NOT NULL DEFAULT FALSE,
+    linked_at       TIMESTAMP(6),
+    last_synced_at  TIMESTAMP(6)
+);
+
+CREATE UNIQUE INDEX ux_dhan_account_client_id ON dhan_account (client_id);
+CREATE INDEX ix_dhan_account_is_active ON dhan_account (is_active);
+
+CREATE TABLE order_journal (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    correlation_id    VARCHAR(64) NOT NULL,
+    order_id          VARCHAR(255),
+    status            VARCHAR(255),
+    symbol            VARCHAR(255),
+    exchange          VARCHAR(255),
+    transaction_type  VARCHAR(255),
+    quantity          INTEGER NOT NULL,
+    created_at        TIMESTAMP(6) NOT NULL
+);
+
+CREATE UNIQUE INDEX ux_order_journal_correlation_id ON order_journal (correlation_id);
+CREATE INDEX ix_order_journal_created_at ON order_journal (created_at);
+
+CREATE TABLE trading_state (
+    state_key    VARCHAR(64) PRIMARY KEY,
+    state_value  VARCHAR(255) NOT NULL,
+    updated_at   TIMESTAMP(6) NOT NULL
+);
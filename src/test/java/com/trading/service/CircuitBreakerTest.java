@@ -0,0 +1,95 @@
+package com.trading.service;
+
+import com.trading.exception.GatewayUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("orders", 3, 60_000);
+
+        fail(breaker, 2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        fail(breaker, 1);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(GatewayUnavailableException.class, breaker::acquirePermission);
+    }
+
+    @Test
+    void successResetsFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker("orders", 3, 60_000);
+
+        fail(breaker, 2);
+        breaker.acquirePermission();
+        breaker.onSuccess();
+        fail(breaker, 2);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void halfOpenAllowsSingleProbe() {
+        CircuitBreaker breaker = new CircuitBreaker("orders", 1, 0);
+        fail(breaker, 1);
+
+        breaker.acquirePermission();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertThrows(GatewayUnavailableException.class, breaker::acquirePermission);
+    }
+
+    @Test
+    void successfulProbeClosesCircuit() {
+        CircuitBreaker breaker = new CircuitBreaker("orders", 1, 0);
+        fail(breaker, 1);
+
+        breaker.acquirePermission();
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.acquirePermission();
+        breaker.acquirePermission();
+    }
+
+    @Test
+    void failedProbeReopensCircuit() {
+        CircuitBreaker breaker = new CircuitBreaker("orders", 5, 50);
+        fail(breaker, 5);
+        sleep(60);
+
+        breaker.acquirePermission();
+        breaker.onFailure();
+
+        // One failed probe is enough, regardless of the threshold
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(GatewayUnavailableException.class, breaker::acquirePermission);
+    }
+
+    @Test
+    void staysOpenUntilOpenDurationPasses() {
+        CircuitBreaker breaker = new CircuitBreaker("orders", 1, 60_000);
+        fail(breaker, 1);
+
+        assertThrows(GatewayUnavailableException.class, breaker::acquirePermission);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private static void fail(CircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            breaker.acquirePermission();
+            breaker.onFailure();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.trading.service;
+
+import com.trading.dto.CreateOrderRequest;
+import com.trading.exception.GatewayUnavailableException;
+import com.trading.exception.OrderOutcomeUnknownException;
+import com.trading.exception.UpstreamFailureException;
+import com.trading.model.DhanAccount;
+import com.trading.model.Order;
+import com.trading.model.OrderJournalEntry;
+import com.trading.repository.DhanAccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.web.client.MockServerRestTemplateCustomizer;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.ResponseCreator;
+
+import java.net.SocketTimeoutException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.ExpectedCount.never;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+class DhanServiceOrderRetryTest {
+
+    private static final String ORDERS_URL = "https://api.dhan.co/v2/orders";
+    private static final String POSITIONS_URL = "https://api.dhan.co/v2/positions";
+    private static final String LOOKUP_URL = "https://api.dhan.co/v2/orders/external/client-id-1";
+
+    private DhanService service;
+    private MockRestServiceServer server;
+    private OrderJournalService journal;
+
+    @BeforeEach
+    void setUp() {
+        MockServerRestTemplateCustomizer customizer = new MockServerRestTemplateCustomizer();
+        service = new DhanService(new RestTemplateBuilder(customizer), 2000, 5000);
+        server = customizer.getServer();
+
+        DhanAccount account = new DhanAccount();
+        account.setClientId("1000000001");
+        account.setAccessToken("token");
+        DhanAccountRepository accounts = mock(DhanAccountRepository.class);
+        when(accounts.findByIsActiveTrue()).thenReturn(Optional.of(account));
+
+        ReflectionTestUtils.setField(service, "accountRepository", accounts);
+        ReflectionTestUtils.setField(service, "orderDedupeCache", new OrderDedupeCache(300, 100));
+        journal = mock(OrderJournalService.class);
+        ReflectionTestUtils.setField(service, "orderJournalService", journal);
+        ReflectionTestUtils.setField(service, "gatewayGuard",
+                new DhanGatewayGuard(new SimpleMeterRegistry(), 100, 10_000, false));
+        ReflectionTestUtils.setField(service, "orderMaxRetries", 2);
+        ReflectionTestUtils.setField(service, "orderRetryBackoffMs", 0L);
+    }
+
+    @Test
+    void firstAttemptIsJournaledThenSentWithoutLookup() {
+        AtomicBoolean journaled = new AtomicBoolean();
+        doAnswer(invocation -> {
+            journaled.set(true);
+            return null;
+        }).when(journal).recordPending(eq("client-id-1"), any());
+        server.expect(requestTo(ORDERS_URL)).andExpect(method(HttpMethod.POST)).andRespond(request -> {
+            assertTrue(journaled.get(), "attempt must be journaled before it is sent");
+            return accepted().createResponse(request);
+        });
+
+        Order order = service.createOrder(request("client-id-1"));
+
+        assertEquals("111", order.getOrderId());
+        verify(journal).recordAccepted(eq("client-id-1"), any());
+        server.verify();
+    }
+
+    @Test
+    void acceptedJournalEntryIsReturnedWithoutCallingDhan() {
+        OrderJournalEntry entry = journalEntry();
+        entry.setOrderId("111");
+        entry.setStatus("TRADED");
+        when(journal.find("client-id-1")).thenReturn(Optional.of(entry));
+        server.expect(never(), requestTo(ORDERS_URL));
+
+        Order order = service.createOrder(request("client-id-1"));
+
+        assertEquals("111", order.getOrderId());
+        server.verify();
+    }
+
+    @Test
+    void pendingAttemptReturnsOrderDhanAlreadyHolds() {
+        when(journal.find("client-id-1")).thenReturn(Optional.of(journalEntry()));
+        expectLookup(found());
+        server.expect(never(), requestTo(ORDERS_URL));
+
+        Order order = service.createOrder(request("client-id-1"));
+
+        assertEquals("111", order.getOrderId());
+        verify(journal, times(0)).recordPending(any(), any());
+        verify(journal).recordAccepted(eq("client-id-1"), any());
+        server.verify();
+    }
+
+    @Test
+    void pendingAttemptIsResentOnceDhanConfirmsItHasNoOrder() {
+        when(journal.find("client-id-1")).thenReturn(Optional.of(journalEntry()));
+        expectLookup(notFound());
+        expectPost(accepted());
+
+        Order order = service.createOrder(request("client-id-1"));
+
+        assertEquals("111", order.getOrderId());
+        verify(journal, times(0)).recordPending(any(), any());
+        server.verify();
+    }
+
+    @Test
+    void timeoutIsResolvedByLookupWithoutResubmitting() {
+        expectPost(withException(new SocketTimeoutException("read timed out")));
+        expectLookup(found());
+
+        Order order = service.createOrder(request("client-id-1"));
+
+        assertEquals("111", order.getOrderId());
+        server.verify();
+    }
+
+    @Test
+    void timeoutIsRetriedOnceDhanConfirmsItHasNoOrder() {
+        expectPost(withException(new SocketTimeoutException("read timed out")));
+        expectLookup(notFound());
+        expectPost(accepted());
+
+        Order order = service.createOrder(request("client-id-1"));
+
+        assertEquals("111", order.getOrderId());
+        server.verify();
+    }
+
+    @Test
+    void failedLookupStopsRetriesAsUnknown() {
+        expectPost(withException(new SocketTimeoutException("read timed out")));
+        expectLookup(withException(new SocketTimeoutException("read timed out")));
+
+        assertThrows(OrderOutcomeUnknownException.class, () -> service.createOrder(request("client-id-1")));
+        // The pending row stays, so the client's retry looks the order up first
+        verify(journal, times(0)).discard(any());
+        server.verify();
+    }
+
+    @Test
+    void exhaustedRetriesOnHtmlBadGatewayEndAsUnknown() {
+        expectPost(badGatewayPage());
+        expectLookup(notFound());
+        expectPost(badGatewayPage());
+        expectLookup(notFound());
+        expectPost(badGatewayPage());
+        // Final look after the last attempt
+        expectLookup(notFound());
+
+        assertThrows(OrderOutcomeUnknownException.class, () -> service.createOrder(request("client-id-1")));
+        verify(journal, times(0)).discard(any());
+        server.verify();
+    }
+
+    @Test
+    void clientErrorFailsWithoutRetry() {
+        expectPost(withBadRequest().contentType(MediaType.APPLICATION_JSON).body("{\"errorCode\":\"DH-905\"}"));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.createOrder(request("client-id-1")));
+
+        assertFalse(e instanceof OrderOutcomeUnknownException);
+        verify(journal).discard("client-id-1");
+        server.verify();
+    }
+
+    @Test
+    void circuitOpeningAfterTimeoutEndsAsUnknown() {
+        ReflectionTestUtils.setField(service, "gatewayGuard",
+                new DhanGatewayGuard(new SimpleMeterRegistry(), 1, 60_000, false));
+        expectPost(withException(new SocketTimeoutException("read timed out")));
+        // The timeout opens the circuit, so the follow-up lookup never reaches Dhan
+        server.expect(never(), requestTo(LOOKUP_URL));
+
+        assertThrows(OrderOutcomeUnknownException.class, () -> service.createOrder(request("client-id-1")));
+        verify(journal, times(0)).discard(any());
+        server.verify();
+    }
+
+    @Test
+    void htmlBadGatewayResponsesOpenTheCircuit() {
+        ReflectionTestUtils.setField(service, "gatewayGuard",
+                new DhanGatewayGuard(new SimpleMeterRegistry(), 3, 60_000, false));
+        for (int i = 0; i < 3; i++) {
+            server.expect(requestTo(POSITIONS_URL)).andRespond(badGatewayPage());
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(RuntimeException.class, () -> service.getPositions());
+        }
+        // Fourth call fails fast without reaching the mock server
+        assertThrows(GatewayUnavailableException.class, () -> service.getPositions());
+        server.verify();
+    }
+
+    @Test
+    void positionsTimeoutIsReportedAsGatewayTimeout() {
+        server.expect(requestTo(POSITIONS_URL))
+                .andRespond(withException(new SocketTimeoutException("read timed out")));
+
+        UpstreamFailureException e = assertThrows(UpstreamFailureException.class, () -> service.getPositions());
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, e.getStatus());
+    }
+
+    @Test
+    void positionsRateLimitIsReportedAsUnavailable() {
+        server.expect(requestTo(POSITIONS_URL)).andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS)
+                .contentType(MediaType.APPLICATION_JSON).body("{\"errorCode\":\"DH-904\"}"));
+
+        UpstreamFailureException e = assertThrows(UpstreamFailureException.class, () -> service.getPositions());
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+    }
+
+    @Test
+    void cancelOnHtmlBadGatewayIsReportedAsBadGateway() {
+        server.expect(requestTo(ORDERS_URL + "/111")).andExpect(method(HttpMethod.DELETE))
+                .andRespond(badGatewayPage());
+
+        UpstreamFailureException e = assertThrows(UpstreamFailureException.class, () -> service.closeOrder("111"));
+
+        assertEquals(HttpStatus.BAD_GATEWAY, e.getStatus());
+    }
+
+    private void expectLookup(ResponseCreator response) {
+        server.expect(requestTo(LOOKUP_URL)).andExpect(method(HttpMethod.GET)).andRespond(response);
+    }
+
+    private void expectPost(ResponseCreator response) {
+        server.expect(requestTo(ORDERS_URL)).andExpect(method(HttpMethod.POST)).andRespond(response);
+    }
+
+    private static ResponseCreator accepted() {
+        return withSuccess("{\"orderId\":\"111\",\"orderStatus\":\"PENDING\"}", MediaType.APPLICATION_JSON);
+    }
+
+    private static ResponseCreator found() {
+        return withSuccess("{\"orderId\":\"111\",\"orderStatus\":\"TRADED\",\"correlationId\":\"client-id-1\"}",
+                MediaType.APPLICATION_JSON);
+    }
+
+    private static ResponseCreator notFound() {
+        return withStatus(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON).body("{\"errorCode\":\"DH-908\"}");
+    }
+
+    private static ResponseCreator badGatewayPage() {
+        return withStatus(HttpStatus.BAD_GATEWAY).contentType(MediaType.TEXT_HTML).body("<html>502 Bad Gateway</html>");
+    }
+
+    private static OrderJournalEntry journalEntry() {
+        OrderJournalEntry entry = new OrderJournalEntry();
+        entry.setCorrelationId("client-id-1");
+        entry.setSymbol("1001");
+        entry.setExchange("NSE_EQ");
+        entry.setTransactionType("BUY");
+        entry.setQuantity(1);
+        return entry;
+    }
+
+    private static CreateOrderRequest request(String correlationId) {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setCorrelationId(correlationId);
+        request.setSymbol("1001");
+        request.setExchange("NSE_EQ");
+        request.setTransactionType("BUY");
+        request.setQuantity(1);
+        request.setOrderType("MARKET");
+        request.setProductType("INTRADAY");
+        return request;
+    }
+}
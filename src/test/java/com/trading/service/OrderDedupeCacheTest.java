@@ -0,0 +1,139 @@
+package com.trading.service;
+
+import com.trading.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderDedupeCacheTest {
+
+    @Test
+    void duplicateJoinsInFlightSubmission() throws Exception {
+        OrderDedupeCache cache = new OrderDedupeCache(300, 100);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Order> first = CompletableFuture.supplyAsync(() -> cache.submitOnce("id-1", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return order("111");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Order> second = CompletableFuture.supplyAsync(() -> cache.submitOnce("id-1", () -> {
+            calls.incrementAndGet();
+            return order("222");
+        }));
+        release.countDown();
+
+        assertEquals("111", first.get(5, TimeUnit.SECONDS).getOrderId());
+        assertEquals("111", second.get(5, TimeUnit.SECONDS).getOrderId());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void completedSubmissionIsReusedWithinTtl() {
+        OrderDedupeCache cache = new OrderDedupeCache(300, 100);
+        cache.submitOnce("id-1", () -> order("111"));
+
+        Order again = cache.submitOnce("id-1", () -> order("222"));
+
+        assertEquals("111", again.getOrderId());
+    }
+
+    @Test
+    void expiredSubmissionIsForgotten() {
+        OrderDedupeCache cache = new OrderDedupeCache(0, 100);
+        cache.submitOnce("id-1", () -> order("111"));
+
+        Order again = cache.submitOnce("id-1", () -> order("222"));
+
+        assertEquals("222", again.getOrderId());
+    }
+
+    @Test
+    void failedSubmissionCanBeRetried() {
+        OrderDedupeCache cache = new OrderDedupeCache(300, 100);
+
+        assertThrows(RuntimeException.class, () -> cache.submitOnce("id-1", () -> {
+            throw new RuntimeException("rejected");
+        }));
+        Order retried = cache.submitOnce("id-1", () -> order("111"));
+
+        assertEquals("111", retried.getOrderId());
+    }
+
+    @Test
+    void sizeBoundNeverEvictsInFlightSubmission() throws Exception {
+        OrderDedupeCache cache = new OrderDedupeCache(300, 1);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Order> inFlight = CompletableFuture.supplyAsync(() -> cache.submitOnce("id-1", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return order("111");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Fills the cache past its bound while id-1 is still running
+        cache.submitOnce("id-2", () -> order("222"));
+        CompletableFuture<Order> duplicate = CompletableFuture.supplyAsync(() -> cache.submitOnce("id-1", () -> {
+            calls.incrementAndGet();
+            return order("333");
+        }));
+        release.countDown();
+
+        assertEquals("111", inFlight.get(5, TimeUnit.SECONDS).getOrderId());
+        assertEquals("111", duplicate.get(5, TimeUnit.SECONDS).getOrderId());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void errorInSubmissionReleasesWaiters() throws Exception {
+        OrderDedupeCache cache = new OrderDedupeCache(300, 100);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Order> owner = CompletableFuture.supplyAsync(() -> cache.submitOnce("id-1", () -> {
+            started.countDown();
+            await(release);
+            throw new AssertionError("boom");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Order> waiter = CompletableFuture.supplyAsync(() -> cache.submitOnce("id-1", () -> order("222")));
+        release.countDown();
+
+        assertThrows(Exception.class, () -> owner.get(5, TimeUnit.SECONDS));
+        // Either joined the failed attempt or ran again after it was dropped; it must not hang
+        try {
+            assertEquals("222", waiter.get(5, TimeUnit.SECONDS).getOrderId());
+        } catch (ExecutionException e) {
+            assertInstanceOf(AssertionError.class, e.getCause());
+        }
+    }
+
+    private static Order order(String orderId) {
+        Order order = new Order();
+        order.setOrderId(orderId);
+        return order;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
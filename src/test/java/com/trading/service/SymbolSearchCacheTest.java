@@ -0,0 +1,216 @@
+package com.trading.service;
+
+import com.trading.model.SecurityMaster;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolSearchCacheTest {
+
+    private static final List<String> QUERIES = List.of(
+            "N", "NI", "NIF", "NIFT", "NIFTY", "NIFTY-", "B", "BA", "BAN", "BANK", "BANKNIFTY",
+            "R", "RE", "REL", "RELI", "RELIANCE", "T", "TA", "TAT", "TATA", "INDU", "INDUSTRIES");
+
+    @Test
+    void narrowingFromPrefixMatchesFullScan() {
+        List<SecurityMaster> securities = securities();
+        SecurityMasterService incremental = service(securities);
+
+        for (String exchange : new String[]{"NSE", "BSE", ""}) {
+            for (int limit : new int[]{5, 50}) {
+                for (String query : QUERIES) {
+                    // A fresh service has no cached prefixes, so it always scans everything
+                    List<SecurityMaster> fullScan = service(securities).searchSymbols(query, exchange, limit);
+                    assertEquals(fullScan, incremental.searchSymbols(query, exchange, limit),
+                            () -> "query=" + query + " exchange=" + exchange + " limit=" + limit);
+                }
+            }
+        }
+    }
+
+    @Test
+    void findCandidatesUsesLongestCachedPrefix() {
+        SymbolSearchCache cache = new SymbolSearchCache(10, 10, 100);
+        List<SecurityMaster> nMatches = List.of(security("1", "NIFTY", "Nifty 50", "NSE", "INDEX"));
+        List<SecurityMaster> nifMatches = List.of();
+        cache.putCandidates("N", "NSE", nMatches);
+        cache.putCandidates("NIF", "NSE", nifMatches);
+
+        assertSame(nifMatches, cache.findCandidates("NIFTY", "NSE"));
+        assertSame(nMatches, cache.findCandidates("NI", "NSE"));
+        assertNull(cache.findCandidates("NIFTY", "BSE"));
+        assertNull(cache.findCandidates("BANK", "NSE"));
+    }
+
+    @Test
+    void oversizedCandidateListsAreNotHeld() {
+        SymbolSearchCache cache = new SymbolSearchCache(10, 10, 1);
+        cache.putCandidates("N", "NSE", securities());
+
+        assertNull(cache.findCandidates("NIFTY", "NSE"));
+    }
+
+    @Test
+    void reloadDropsCachedResults() {
+        SecurityMasterService service = service(securities());
+        assertFalse(service.searchSymbols("RELIANCE", "NSE", 10).isEmpty());
+
+        service.loadSecurities(List.of(security("9", "TCS", "Tata Consultancy Services", "NSE", "EQUITY")));
+
+        assertTrue(service.searchSymbols("RELIANCE", "NSE", 10).isEmpty());
+        assertTrue(service.searchSymbols("REL", "NSE", 10).isEmpty());
+    }
+
+    @Test
+    void concurrentIdenticalSearchesShareOneScan() throws Exception {
+        BlockingSecurity blocking = new BlockingSecurity(null);
+        List<SecurityMaster> securities = securities();
+        securities.add(blocking);
+        SecurityMasterService service = service(securities);
+
+        Search first = Search.start(service);
+        assertTrue(blocking.entered.await(5, TimeUnit.SECONDS));
+        Search second = Search.start(service);
+        second.awaitParked();
+        blocking.release.countDown();
+
+        assertSame(first.result(), second.result());
+        assertEquals(1, blocking.scanningThreads.size());
+    }
+
+    @Test
+    void concurrentSearchSeesErrorFromSharedScan() throws Exception {
+        Error failure = new Error("scan failed");
+        BlockingSecurity blocking = new BlockingSecurity(failure);
+        List<SecurityMaster> securities = securities();
+        securities.add(blocking);
+        SecurityMasterService service = service(securities);
+
+        Search first = Search.start(service);
+        assertTrue(blocking.entered.await(5, TimeUnit.SECONDS));
+        Search second = Search.start(service);
+        second.awaitParked();
+        blocking.release.countDown();
+
+        assertSame(failure, first.failure());
+        assertSame(failure, second.failure());
+    }
+
+    /** A security whose symbol read parks the scanning thread until released. */
+    private static class BlockingSecurity extends SecurityMaster {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Set<Thread> scanningThreads = ConcurrentHashMap.newKeySet();
+        private final Error failure;
+
+        BlockingSecurity(Error failure) {
+            this.failure = failure;
+            setSecurityId("9999");
+            setName("Reliance Blocking Ltd");
+            setExchangeSegment("NSE");
+            setInstrumentType("EQUITY");
+        }
+
+        @Override
+        public String getTradingSymbol() {
+            if (scanningThreads.add(Thread.currentThread())) {
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (failure != null) throw failure;
+            }
+            return "RELIANCE-BLOCK";
+        }
+    }
+
+    /** Runs one "REL" search on its own thread. */
+    private static class Search {
+        final Thread thread;
+        final AtomicReference<List<SecurityMaster>> result = new AtomicReference<>();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private Search(SecurityMasterService service) {
+            thread = new Thread(() -> {
+                try {
+                    result.set(service.searchSymbols("REL", "NSE", 10));
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+        }
+
+        static Search start(SecurityMasterService service) {
+            Search search = new Search(service);
+            search.thread.start();
+            return search;
+        }
+
+        // Parked means joined on the in-flight search rather than scanning itself
+        void awaitParked() throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+
+        List<SecurityMaster> result() throws InterruptedException {
+            thread.join(5000);
+            assertNull(failure.get());
+            return result.get();
+        }
+
+        Throwable failure() throws InterruptedException {
+            thread.join(5000);
+            assertFalse(thread.isAlive(), "search is still waiting");
+            return failure.get();
+        }
+    }
+
+    private static SecurityMasterService service(List<SecurityMaster> securities) {
+        SecurityMasterService service = new SecurityMasterService(1000, 256, 5000);
+        service.loadSecurities(securities);
+        return service;
+    }
+
+    private static List<SecurityMaster> securities() {
+        List<SecurityMaster> list = new ArrayList<>();
+        int id = 1000;
+        for (String exchange : new String[]{"NSE", "BSE"}) {
+            list.add(security(String.valueOf(id++), "RELIANCE", "Reliance Industries Ltd", exchange, "EQUITY"));
+            list.add(security(String.valueOf(id++), "TATASTEEL", "Tata Steel Ltd", exchange, "EQUITY"));
+            list.add(security(String.valueOf(id++), "TATAMOTORS", "Tata Motors Ltd", exchange, "EQUITY"));
+            list.add(security(String.valueOf(id++), "INDUSINDBK", "IndusInd Bank Ltd", exchange, "EQUITY"));
+            list.add(security(String.valueOf(id++), "BANKBARODA", "Bank of Baroda", exchange, "EQUITY"));
+        }
+        list.add(security(String.valueOf(id++), "NIFTY", "Nifty 50", "NSE", "INDEX"));
+        list.add(security(String.valueOf(id++), "BANKNIFTY", "Nifty Bank", "NSE", "INDEX"));
+        for (int strike = 24000; strike <= 24500; strike += 50) {
+            list.add(security(String.valueOf(id++), "NIFTY-Nov2026-" + strike + "-CE", "NIFTY", "NSE", "OPTIDX"));
+            list.add(security(String.valueOf(id++), "NIFTY-Nov2026-" + strike + "-PE", "NIFTY", "NSE", "OPTIDX"));
+            list.add(security(String.valueOf(id++), "BANKNIFTY-Nov2026-" + (strike * 2) + "-CE", "BANKNIFTY", "NSE", "OPTIDX"));
+        }
+        list.add(security(String.valueOf(id++), "RELIANCE-Nov2026-FUT", "Reliance Industries Ltd", "NSE", "FUTSTK"));
+        return list;
+    }
+
+    private static SecurityMaster security(String id, String symbol, String name, String exchange, String type) {
+        SecurityMaster security = new SecurityMaster();
+        security.setSecurityId(id);
+        security.setTradingSymbol(symbol);
+        security.setName(name);
+        security.setExchangeSegment(exchange);
+        security.setInstrumentType(type);
+        return security;
+    }
+}